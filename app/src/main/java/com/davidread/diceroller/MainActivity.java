@@ -3,7 +3,8 @@ package com.davidread.diceroller;
 import android.annotation.SuppressLint;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.CountDownTimer;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.view.ContextMenu;
 import android.view.GestureDetector;
 import android.view.Menu;
@@ -14,6 +15,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.GestureDetectorCompat;
@@ -28,7 +30,7 @@ import com.google.android.material.snackbar.Snackbar;
  * that die. Each die may be double tapped to increment their value by one. Flinging the screen
  * rolls all dice.
  */
-public class MainActivity extends AppCompatActivity implements RollLengthDialogFragment.OnRollLengthSelectedListener {
+public class MainActivity extends AppCompatActivity implements RollLengthDialogFragment.OnRollLengthSelectedListener, RollScheduler.OnRollListener {
 
     /**
      * Int constant representing the maximum number of dice allowed to be shown on screen.
@@ -70,10 +72,62 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
 
     /**
      * Array of {@link GestureDetectorCompat} that define how each {@link #mDiceImageViews}
-     * view should respond to touch gestures.
+     * view should respond to touch gestures. Elements are created by {@link #runDeferredInit()}.
      */
     private GestureDetectorCompat[] mDetectors;
 
+    /**
+     * Array of ints holding the image resource ID currently displayed by each
+     * {@link #mDiceImageViews} element, so {@link #updateUI()} only loads a drawable when a die's
+     * value actually changes.
+     */
+    private int[] mShownImageIds;
+
+    /**
+     * Two-dimensional array of {@link Drawable} caching the image drawable for each die value of
+     * each {@link #mDiceImageViews} element. Elements are loaded lazily by {@link #updateUI()} so
+     * rolling does not inflate a new drawable every tick.
+     */
+    private Drawable[][] mDiceDrawables;
+
+    /**
+     * Array of {@link String} caching the content description for each die value. Elements are
+     * built lazily by {@link #updateUI()}.
+     */
+    private String[] mDiceDescriptions;
+
+    /**
+     * Array of {@link String} caching the sum label for each possible sum. Elements are built
+     * lazily by {@link #updateUI()}.
+     */
+    private String[] mSumLabels;
+
+    /**
+     * Int representing the sum currently displayed by {@link #mSumTextView}, or -1 if none is.
+     */
+    private int mShownSum = -1;
+
+    /**
+     * Boolean indicating whether {@link #runDeferredInit()} has completed.
+     */
+    private boolean mDeferredInitComplete;
+
+    /**
+     * {@link MessageQueue.IdleHandler} that invokes {@link #runDeferredInit()} once the main
+     * thread's message queue goes idle.
+     */
+    private final MessageQueue.IdleHandler mDeferredInitIdleHandler = () -> {
+        runDeferredInit();
+        return false;
+    };
+
+    /**
+     * Longs holding the {@link System#nanoTime()} time {@link #onCreate(Bundle)} started and the
+     * time its first {@link #updateUI()} call returned.
+     */
+    private long mCreateStartNanos;
+    private long mFirstUpdateUINanos;
+
     /**
      * Int representing the sum of the values of the dice visible on screen.
      */
@@ -85,13 +139,14 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
     private TextView mSumTextView;
 
     /**
-     * {@link CountDownTimer} used to call {@link Dice#roll()} a few times a second to give a nice
-     * dice roll animation.
+     * {@link RollScheduler} used to call {@link Dice#roll()} a few times a second to give a nice
+     * dice roll animation. Each die is its own table, so dice may roll concurrently.
      */
-    private CountDownTimer mTimer;
+    private RollScheduler mRollScheduler;
 
     /**
-     * Long indicating how many milliseconds {@link #mTimer} should loop before stopping.
+     * Long indicating how many milliseconds a roll started by {@link #mRollScheduler} should loop
+     * before stopping.
      */
     private long mTimerLength = 2000;
 
@@ -107,12 +162,14 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
     private int mCurrentDie;
 
     /**
-     * Callback method invoked when the activity is created. It initializes member variables and
-     * initializes the user interface.
+     * Callback method invoked when the activity is created. It initializes the member variables
+     * and user interface needed for the first frame, and schedules {@link #runDeferredInit()} to
+     * initialize the rest once the main thread is idle.
      */
     @SuppressLint("ClickableViewAccessibility")
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        mCreateStartNanos = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -127,7 +184,7 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
             String mDiceState = savedInstanceState.getString(DICE_STATE_EXTRA);
             for (int i = 0; i < MAX_DICE; i++) {
                 if (i < mDiceState.length()) {
-                    mDice[i] = new Dice(Integer.parseInt(mDiceState.substring(i, i + 1)));
+                    mDice[i] = new Dice(Character.digit(mDiceState.charAt(i), 10));
                 } else {
                     mDice[i] = new Dice(1);
                 }
@@ -139,51 +196,30 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
         mDiceImageViews[0] = findViewById(R.id.dice_1);
         mDiceImageViews[1] = findViewById(R.id.dice_2);
         mDiceImageViews[2] = findViewById(R.id.dice_3);
+        mShownImageIds = new int[MAX_DICE];
+        mDiceDrawables = new Drawable[MAX_DICE][Dice.LARGEST_NUM];
+        mDiceDescriptions = new String[Dice.LARGEST_NUM];
+        mSumLabels = new String[MAX_DICE * Dice.LARGEST_NUM + 1];
 
         for (int i = 0; i < mDiceImageViews.length; i++) {
             int innerI = i;
-
-            // Register mDiceImageViews elements for context menus in this activity.
-            registerForContextMenu(mDiceImageViews[innerI]);
             mDiceImageViews[innerI].setTag(innerI);
 
             /* Register mDiceImageViews elements for OnTouchListener objects. Each listener passes
-             * all touch events to the appropriate mDetector element. */
+             * all touch events to the appropriate mDetector element, creating it first if the
+             * deferred initialization has not run yet. */
             mDiceImageViews[innerI].setOnTouchListener((v, event) -> {
+                runDeferredInit();
                 mDetectors[innerI].onTouchEvent(event);
                 return true;
             });
         }
 
-        // Initialize mDetectors elements for each mDiceImageViews element.
+        // mDetectors elements are created by runDeferredInit().
         mDetectors = new GestureDetectorCompat[mDiceImageViews.length];
-        for (int i = 0; i < mDetectors.length; i++) {
-            int innerI = i;
-            mDetectors[i] = new GestureDetectorCompat(this, new GestureDetector.SimpleOnGestureListener() {
-
-                // Add one to this Dice object if a double tap is detected on the view.
-                @Override
-                public boolean onDoubleTap(MotionEvent e) {
-                    mDice[innerI].addOne();
-                    calculateSum();
-                    updateUI();
-                    return super.onDoubleTap(e);
-                }
-
-                // Open a context menu for this Dice object if a long press is detected on the view.
-                @Override
-                public void onLongPress(MotionEvent motionEvent) {
-                    openContextMenu(mDiceImageViews[innerI]);
-                }
 
-                // Roll all dice if a fling is detected on the view.
-                @Override
-                public boolean onFling(MotionEvent motionEvent, MotionEvent motionEvent1, float v, float v1) {
-                    rollDice();
-                    return false;
-                }
-            });
-        }
+        // Initialize mRollScheduler.
+        mRollScheduler = new RollScheduler(MAX_DICE, this);
 
         // Initialize number of dice initially visible on screen.
         if (savedInstanceState == null) {
@@ -207,6 +243,22 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
 
         // Initialize the user interface.
         updateUI();
+        mFirstUpdateUINanos = System.nanoTime();
+
+        /* Anything the first frame does not need is initialized once the main thread's message
+         * queue goes idle. */
+        Looper.myQueue().addIdleHandler(mDeferredInitIdleHandler);
+    }
+
+    /**
+     * Callback method invoked when the activity is destroyed. It stops any dice rolling and
+     * removes {@link #mDeferredInitIdleHandler} in case the main thread never went idle.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mRollScheduler.cancelAll();
+        Looper.myQueue().removeIdleHandler(mDeferredInitIdleHandler);
     }
 
     /**
@@ -281,7 +333,7 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
 
         // When "Stop" is selected, stop rolling dice and hide this action bar button.
         else if (item.getItemId() == R.id.action_stop) {
-            mTimer.cancel();
+            mRollScheduler.cancelAll();
             item.setVisible(false);
             mMenu.findItem(R.id.action_roll).setVisible(true);
             return true;
@@ -355,7 +407,7 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
 
     /**
      * Callback method invoked when a length is selected by a {@link RollLengthDialogFragment}. It
-     * simply assigns the selected length to {@link #mTimer}.
+     * simply assigns the selected length to {@link #mTimerLength}.
      *
      * @param which Int representing which length was selected by {@link RollLengthDialogFragment}.
      */
@@ -364,6 +416,86 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
         mTimerLength = 1000 * (which + 1);
     }
 
+    /**
+     * Initializes the parts of this activity that are not needed to draw its first frame. It
+     * registers {@link #mDiceImageViews} elements for context menus and initializes
+     * {@link #mDetectors} elements. It is invoked when the main thread first goes idle, or earlier
+     * if a die is touched before then. Subsequent invocations do nothing.
+     */
+    private void runDeferredInit() {
+        if (mDeferredInitComplete) {
+            return;
+        }
+
+        for (int i = 0; i < mDiceImageViews.length; i++) {
+            int innerI = i;
+
+            // Register mDiceImageViews elements for context menus in this activity.
+            registerForContextMenu(mDiceImageViews[innerI]);
+
+            // Initialize mDetectors element for this mDiceImageViews element.
+            mDetectors[innerI] = new GestureDetectorCompat(this, new GestureDetector.SimpleOnGestureListener() {
+
+                // Add one to this Dice object if a double tap is detected on the view.
+                @Override
+                public boolean onDoubleTap(MotionEvent e) {
+                    mDice[innerI].addOne();
+                    calculateSum();
+                    updateUI();
+                    return super.onDoubleTap(e);
+                }
+
+                // Open a context menu for this Dice object if a long press is detected on the view.
+                @Override
+                public void onLongPress(MotionEvent motionEvent) {
+                    openContextMenu(mDiceImageViews[innerI]);
+                }
+
+                // Roll all dice if a fling is detected on the view.
+                @Override
+                public boolean onFling(MotionEvent motionEvent, MotionEvent motionEvent1, float v, float v1) {
+                    rollDice();
+                    return false;
+                }
+            });
+        }
+
+        mDeferredInitComplete = true;
+    }
+
+    /**
+     * Returns whether {@link #runDeferredInit()} has completed.
+     */
+    @VisibleForTesting
+    boolean isDeferredInitComplete() {
+        return mDeferredInitComplete;
+    }
+
+    /**
+     * Returns how many nanoseconds passed between {@link #onCreate(Bundle)} starting and its first
+     * {@link #updateUI()} call returning.
+     */
+    @VisibleForTesting
+    long getTimeToFirstUpdateUINanos() {
+        return mFirstUpdateUINanos - mCreateStartNanos;
+    }
+
+    /**
+     * Returns the {@link Dice} object at the passed index of {@link #mDice}.
+     */
+    @VisibleForTesting
+    Dice getDice(int which) {
+        return mDice[which];
+    }
+
+    /**
+     * Returns {@link #mRollScheduler}.
+     */
+    @VisibleForTesting
+    RollScheduler getRollScheduler() {
+        return mRollScheduler;
+    }
+
     /**
      * Changes the number of dice shown on screen to the passed argument.
      *
@@ -379,14 +511,67 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
             mDiceImageViews[i].setVisibility(View.VISIBLE);
         }
 
-        // Hide remaining dice.
+        // Hide remaining dice and stop them rolling.
+        boolean wasRolling = mRollScheduler.isRolling();
         for (int i = numVisible; i < MAX_DICE; i++) {
             mDiceImageViews[i].setVisibility(View.GONE);
+            mRollScheduler.cancel(i);
+        }
+
+        // If that stopped the last rolling die, hide "Stop" and show "Roll" action bar buttons.
+        if (wasRolling && !mRollScheduler.isRolling()) {
+            mMenu.findItem(R.id.action_stop).setVisible(false);
+            mMenu.findItem(R.id.action_roll).setVisible(true);
         }
     }
 
     /**
-     * Rolls the appropriate die on screen with a nice animation.
+     * Callback method invoked by {@link #mRollScheduler} a few times a second for each die that is
+     * rolling. It simply calls {@link Dice#roll()} on the appropriate {@link #mDice} element.
+     *
+     * @param table Which {@link Dice} object to call {@link Dice#roll()} on.
+     */
+    @Override
+    public void onRollTick(int table) {
+        mDice[table].roll();
+    }
+
+    /**
+     * Callback method invoked by {@link #mRollScheduler} once per tick after every rolling die has
+     * been rolled. It calculates the sum and updates the user interface.
+     */
+    @Override
+    public void onTickEnd() {
+        calculateSum();
+        updateUI();
+    }
+
+    /**
+     * Callback method invoked by {@link #mRollScheduler} when a die finishes rolling. Nothing
+     * needs to happen until every die has finished.
+     *
+     * @param table Which {@link Dice} object finished rolling.
+     */
+    @Override
+    public void onRollFinish(int table) {
+    }
+
+    /**
+     * Callback method invoked by {@link #mRollScheduler} when the last rolling die finishes. It
+     * hides "Stop" and shows "Roll" action bar buttons, and checks for winning and losing
+     * conditions.
+     */
+    @Override
+    public void onAllRollsFinished() {
+        mMenu.findItem(R.id.action_stop).setVisible(false);
+        mMenu.findItem(R.id.action_roll).setVisible(true);
+        checkForWinConditions();
+        checkForLoseConditions();
+    }
+
+    /**
+     * Rolls the appropriate die on screen with a nice animation. Other dice that are already
+     * rolling keep rolling.
      *
      * @param which Which {@link Dice} object to call {@link Dice#roll()} on.
      */
@@ -396,31 +581,8 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
         mMenu.findItem(R.id.action_stop).setVisible(true);
         mMenu.findItem(R.id.action_roll).setVisible(false);
 
-        // Stop mTimer if it is already running.
-        if (mTimer != null) {
-            mTimer.cancel();
-        }
-
-        // Initialize mTimer to call roll() on all mDice elements repeatedly.
-        mTimer = new CountDownTimer(mTimerLength, 100) {
-
-            /* A few times a second, call roll() on the appropriate mDice element, calculate the
-             * sum, and update the user interface. */
-            public void onTick(long millisUntilFinished) {
-                mDice[which].roll();
-                calculateSum();
-                updateUI();
-            }
-
-            /* When mTimer is finished, hide "Stop" and show "Roll" action bar buttons, and check
-             * for winning and losing conditions. */
-            public void onFinish() {
-                mMenu.findItem(R.id.action_stop).setVisible(false);
-                mMenu.findItem(R.id.action_roll).setVisible(true);
-                checkForWinConditions();
-                checkForLoseConditions();
-            }
-        }.start();
+        // Start rolling the appropriate die, restarting it if it is already rolling.
+        mRollScheduler.schedule(which, mTimerLength);
     }
 
     /**
@@ -432,40 +594,18 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
         mMenu.findItem(R.id.action_stop).setVisible(true);
         mMenu.findItem(R.id.action_roll).setVisible(false);
 
-        // Stop mTimer if it is already running.
-        if (mTimer != null) {
-            mTimer.cancel();
+        // Start rolling all visible dice, restarting any that are already rolling.
+        for (int i = 0; i < mVisibleDice; i++) {
+            mRollScheduler.schedule(i, mTimerLength);
         }
-
-        // Initialize mTimer to call roll() on all mDice elements repeatedly.
-        mTimer = new CountDownTimer(mTimerLength, 100) {
-
-            /* A few times a second, call roll() on all mDice elements, calculate the sum, and
-             * update the user interface. */
-            public void onTick(long millisUntilFinished) {
-                for (int i = 0; i < mVisibleDice; i++) {
-                    mDice[i].roll();
-                }
-                calculateSum();
-                updateUI();
-            }
-
-            /* When mTimer is finished, hide "Stop" and show "Roll" action bar buttons, and check
-             * for winning and losing conditions. */
-            public void onFinish() {
-                mMenu.findItem(R.id.action_stop).setVisible(false);
-                mMenu.findItem(R.id.action_roll).setVisible(true);
-                checkForWinConditions();
-                checkForLoseConditions();
-            }
-        }.start();
     }
 
     /**
      * Calculate the sum of the values of {@link #mDice} that are currently visible on screen. This
      * value is put in {@link #mSum}.
      */
-    private void calculateSum() {
+    @VisibleForTesting
+    void calculateSum() {
         mSum = 0;
         for (int i = 0; i < mVisibleDice; i++) {
             mSum += mDice[i].getNumber();
@@ -476,18 +616,42 @@ public class MainActivity extends AppCompatActivity implements RollLengthDialogF
      * Updates the user interface of this activity to match the logic of {@link #mDice} and
      * {@link #mSum}.
      */
-    private void updateUI() {
+    @VisibleForTesting
+    void updateUI() {
 
         /* Update mDiceImageViews elements to have image drawables and descriptions that match their
-         * corresponding models in mDice. */
+         * corresponding models in mDice. Elements already showing the right image are skipped. */
         for (int i = 0; i < mVisibleDice; i++) {
-            Drawable diceDrawable = ContextCompat.getDrawable(this, mDice[i].getImageId());
+            int imageId = mDice[i].getImageId();
+            if (mShownImageIds[i] == imageId) {
+                continue;
+            }
+            int number = mDice[i].getNumber();
+            Drawable diceDrawable = mDiceDrawables[i][number - 1];
+            if (diceDrawable == null) {
+                diceDrawable = ContextCompat.getDrawable(this, imageId);
+                mDiceDrawables[i][number - 1] = diceDrawable;
+            }
+            String diceDescription = mDiceDescriptions[number - 1];
+            if (diceDescription == null) {
+                diceDescription = Integer.toString(number);
+                mDiceDescriptions[number - 1] = diceDescription;
+            }
             mDiceImageViews[i].setImageDrawable(diceDrawable);
-            mDiceImageViews[i].setContentDescription(Integer.toString(mDice[i].getNumber()));
+            mDiceImageViews[i].setContentDescription(diceDescription);
+            mShownImageIds[i] = imageId;
         }
 
-        // Update mSumTextView to match its mSum model.
-        mSumTextView.setText(getString(R.string.sum_label, mSum));
+        // Update mSumTextView to match its mSum model if it has changed.
+        if (mShownSum != mSum) {
+            String sumLabel = mSumLabels[mSum];
+            if (sumLabel == null) {
+                sumLabel = getString(R.string.sum_label, mSum);
+                mSumLabels[mSum] = sumLabel;
+            }
+            mSumTextView.setText(sumLabel);
+            mShownSum = mSum;
+        }
     }
 
     /**
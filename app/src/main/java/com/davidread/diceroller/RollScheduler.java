@@ -0,0 +1,408 @@
+package com.davidread.diceroller;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * {@link RollScheduler} drives any number of concurrent roll animations from a single tick
+ * source. Each roll belongs to a table, identified by an int from zero to one less than the
+ * table count, and has its own length. Roll deadlines are kept in a timing wheel, so scheduling, cancelling, and
+ * expiring a roll cost a constant amount of work no matter how many tables are rolling.
+ * <p>
+ * Every table shares the same tick phase. A roll's length is counted from the next tick, so it
+ * never ends early, but may run up to {@link #TICK_MILLIS} longer than requested. A roll's first
+ * tick likewise arrives at the next tick rather than immediately. Ticks missed while the main
+ * thread is stalled are skipped rather than run back to back; rolls due on them still finish.
+ */
+public class RollScheduler {
+
+    /**
+     * {@link OnRollListener} is an interface that defines the callback methods invoked on the main
+     * thread as the rolls of a {@link RollScheduler} progress.
+     */
+    public interface OnRollListener {
+
+        /**
+         * Invoked once per tick for each table that is rolling.
+         */
+        void onRollTick(int table);
+
+        /**
+         * Invoked once per tick after {@link #onRollTick(int)} has been invoked for every rolling
+         * table.
+         */
+        void onTickEnd();
+
+        /**
+         * Invoked when the roll of a table reaches its length. It is not invoked for cancelled
+         * rolls.
+         */
+        void onRollFinish(int table);
+
+        /**
+         * Invoked once on the tick the last rolling table finishes, after
+         * {@link #onRollFinish(int)} has been invoked for every table that finished on it. It is
+         * not invoked when the last roll is cancelled.
+         */
+        void onAllRollsFinished();
+    }
+
+    /**
+     * Long constant representing how many milliseconds pass between ticks.
+     */
+    public static final long TICK_MILLIS = 100;
+
+    /**
+     * Int constants for the number of slots in the timing wheel and the mask that maps a tick to
+     * its slot. The slot count must be a power of two.
+     */
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * {@link ScheduledRoll} holds the state of one table's roll. Each object is linked into the
+     * list of rolling tables and into the list of its timing wheel slot.
+     */
+    private static class ScheduledRoll {
+
+        /**
+         * Int representing the table this roll belongs to.
+         */
+        final int mTable;
+
+        /**
+         * Boolean indicating whether this roll is in progress.
+         */
+        boolean mActive;
+
+        /**
+         * Boolean indicating whether this roll expired on the current tick and still needs
+         * {@link OnRollListener#onRollFinish(int)} invoked.
+         */
+        boolean mFinishing;
+
+        /**
+         * Int representing how many more times the wheel must pass {@link #mSlot} before this
+         * roll expires.
+         */
+        int mRounds;
+
+        /**
+         * Int representing the timing wheel slot this roll is linked into.
+         */
+        int mSlot;
+
+        /**
+         * Links to the neighbouring rolls in the list of rolling tables.
+         */
+        ScheduledRoll mPrevActive;
+        ScheduledRoll mNextActive;
+
+        /**
+         * Links to the neighbouring rolls in the list of {@link #mSlot}.
+         */
+        ScheduledRoll mPrevInSlot;
+        ScheduledRoll mNextInSlot;
+
+        /**
+         * Link to the next roll that expired on the current tick.
+         */
+        ScheduledRoll mNextFinishing;
+
+        ScheduledRoll(int table) {
+            mTable = table;
+        }
+    }
+
+    /**
+     * Array of {@link ScheduledRoll} holding the roll state of each table.
+     */
+    private final ScheduledRoll[] mRolls;
+
+    /**
+     * Array of {@link ScheduledRoll} holding the head of each timing wheel slot's list.
+     */
+    private final ScheduledRoll[] mSlots = new ScheduledRoll[WHEEL_SIZE];
+
+    /**
+     * Head of the list of rolling tables.
+     */
+    private ScheduledRoll mActiveHead;
+
+    /**
+     * The roll to visit next while ticking the list of rolling tables, kept up to date if a
+     * listener cancels it mid-tick.
+     */
+    private ScheduledRoll mTickNext;
+
+    /**
+     * Int representing the number of tables rolling.
+     */
+    private int mActiveCount;
+
+    /**
+     * Int representing the number of ticks that have passed.
+     */
+    private int mCurrentTick;
+
+    /**
+     * Boolean indicating whether {@link #mTickRunnable} is running, in which case it reposts
+     * itself and {@link #schedule(int, long)} must not post it again.
+     */
+    private boolean mTicking;
+
+    /**
+     * Long representing the {@link SystemClock#uptimeMillis()} time of the next tick.
+     */
+    private long mNextTickTime;
+
+    /**
+     * {@link OnRollListener} to notify as rolls progress.
+     */
+    private final OnRollListener mListener;
+
+    /**
+     * {@link Handler} that posts {@link #mTickRunnable} to the main thread.
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * {@link Runnable} that advances every roll by one tick and posts itself again while any
+     * table is rolling. If it runs late, the ticks it missed are skipped first.
+     */
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mTicking = true;
+
+            // Skip ticks missed while the main thread was stalled, only finishing rolls due on them.
+            long now = SystemClock.uptimeMillis();
+            while (mActiveCount > 0 && mNextTickTime + TICK_MILLIS <= now) {
+                advance(false);
+                mNextTickTime += TICK_MILLIS;
+            }
+
+            if (mActiveCount > 0) {
+                advance(true);
+            }
+            mTicking = false;
+            if (mActiveCount > 0) {
+                mNextTickTime += TICK_MILLIS;
+                mHandler.postAtTime(this, mNextTickTime);
+            }
+        }
+    };
+
+    /**
+     * Constructs a new {@link RollScheduler}.
+     *
+     * @param tableCount Number of tables this scheduler may roll. Tables are identified by ints
+     *                   from zero to one less than this count.
+     * @param listener   {@link OnRollListener} to notify as rolls progress.
+     */
+    public RollScheduler(int tableCount, OnRollListener listener) {
+        mRolls = new ScheduledRoll[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            mRolls[i] = new ScheduledRoll(i);
+        }
+        mListener = listener;
+    }
+
+    /**
+     * Starts rolling the passed table. If it is already rolling, its roll is restarted with the
+     * passed length. The length is rounded up to a whole number of ticks.
+     *
+     * @param table        The table to roll.
+     * @param lengthMillis How many milliseconds the roll should last.
+     */
+    public void schedule(int table, long lengthMillis) {
+        boolean tickSourceRunning = mActiveCount > 0 || mTicking;
+        ScheduledRoll roll = mRolls[table];
+        if (roll.mActive) {
+            unlink(roll);
+        }
+        roll.mFinishing = false;
+
+        // Count the roll's length from the next tick, which is a full tick away unless the tick
+        // source is running and between ticks.
+        long untilNextTick = TICK_MILLIS;
+        if (tickSourceRunning && !mTicking) {
+            untilNextTick = Math.max(0, Math.min(TICK_MILLIS, mNextTickTime - SystemClock.uptimeMillis()));
+        }
+
+        // Find the slot and number of wheel rounds until this roll expires.
+        long remainingMillis = Math.max(0, lengthMillis - untilNextTick);
+        int ticks = (int) (1 + (remainingMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+        roll.mSlot = (mCurrentTick + ticks) & WHEEL_MASK;
+        roll.mRounds = (ticks - 1) / WHEEL_SIZE;
+
+        // Link roll into its slot list.
+        roll.mPrevInSlot = null;
+        roll.mNextInSlot = mSlots[roll.mSlot];
+        if (roll.mNextInSlot != null) {
+            roll.mNextInSlot.mPrevInSlot = roll;
+        }
+        mSlots[roll.mSlot] = roll;
+
+        // Link roll into the list of rolling tables.
+        roll.mPrevActive = null;
+        roll.mNextActive = mActiveHead;
+        if (mActiveHead != null) {
+            mActiveHead.mPrevActive = roll;
+        }
+        mActiveHead = roll;
+        roll.mActive = true;
+
+        // Start the tick source if it is not already running.
+        mActiveCount++;
+        if (!tickSourceRunning) {
+            mNextTickTime = SystemClock.uptimeMillis() + TICK_MILLIS;
+            mHandler.postAtTime(mTickRunnable, mNextTickTime);
+        }
+    }
+
+    /**
+     * Stops rolling the passed table without invoking {@link OnRollListener#onRollFinish(int)}.
+     *
+     * @param table The table to stop rolling.
+     */
+    public void cancel(int table) {
+        ScheduledRoll roll = mRolls[table];
+        roll.mFinishing = false;
+        if (roll.mActive) {
+            unlink(roll);
+            if (mActiveCount == 0 && !mTicking) {
+                mHandler.removeCallbacks(mTickRunnable);
+            }
+        }
+    }
+
+    /**
+     * Stops rolling every table without invoking {@link OnRollListener#onRollFinish(int)}.
+     */
+    public void cancelAll() {
+        for (ScheduledRoll roll : mRolls) {
+            cancel(roll.mTable);
+        }
+    }
+
+    /**
+     * Returns whether the passed table is rolling.
+     */
+    public boolean isRolling(int table) {
+        return mRolls[table].mActive;
+    }
+
+    /**
+     * Returns whether any table is rolling.
+     */
+    public boolean isRolling() {
+        return mActiveCount > 0;
+    }
+
+    /**
+     * Advances every roll by one tick. Rolls that reach their length are finished, and every other
+     * rolling table is ticked, followed by a single {@link OnRollListener#onTickEnd()}.
+     */
+    @VisibleForTesting
+    void advance() {
+        advance(true);
+    }
+
+    /**
+     * Advances every roll by one tick. Rolls that reach their length are finished. If the tick is
+     * not being skipped, every other rolling table is ticked, followed by a single
+     * {@link OnRollListener#onTickEnd()}.
+     *
+     * @param tick Whether to tick the rolling tables, or only finish rolls for a skipped tick.
+     */
+    private void advance(boolean tick) {
+        mCurrentTick++;
+
+        // Unlink the rolls in this tick's slot that have reached their length.
+        ScheduledRoll finishingHead = null;
+        ScheduledRoll roll = mSlots[mCurrentTick & WHEEL_MASK];
+        while (roll != null) {
+            ScheduledRoll next = roll.mNextInSlot;
+            if (roll.mRounds > 0) {
+                roll.mRounds--;
+            } else {
+                unlink(roll);
+                roll.mFinishing = true;
+                roll.mNextFinishing = finishingHead;
+                finishingHead = roll;
+            }
+            roll = next;
+        }
+
+        // Tick the rolling tables.
+        if (tick) {
+            mTickNext = mActiveHead;
+            while (mTickNext != null) {
+                roll = mTickNext;
+                mTickNext = roll.mNextActive;
+                mListener.onRollTick(roll.mTable);
+            }
+            mListener.onTickEnd();
+        }
+
+        // Finish the expired rolls, skipping any a listener has since cancelled or rescheduled.
+        boolean finishedAny = false;
+        while (finishingHead != null) {
+            roll = finishingHead;
+            finishingHead = roll.mNextFinishing;
+            roll.mNextFinishing = null;
+            if (roll.mFinishing) {
+                roll.mFinishing = false;
+                finishedAny = true;
+                mListener.onRollFinish(roll.mTable);
+            }
+        }
+
+        // Notify the listener once if that was the last rolling table.
+        if (finishedAny && mActiveCount == 0) {
+            mListener.onAllRollsFinished();
+        }
+    }
+
+    /**
+     * Unlinks the passed roll from its slot list and the list of rolling tables.
+     *
+     * @param roll The {@link ScheduledRoll} to unlink.
+     */
+    private void unlink(ScheduledRoll roll) {
+
+        // Unlink roll from its slot list.
+        if (roll.mPrevInSlot != null) {
+            roll.mPrevInSlot.mNextInSlot = roll.mNextInSlot;
+        } else {
+            mSlots[roll.mSlot] = roll.mNextInSlot;
+        }
+        if (roll.mNextInSlot != null) {
+            roll.mNextInSlot.mPrevInSlot = roll.mPrevInSlot;
+        }
+        roll.mPrevInSlot = null;
+        roll.mNextInSlot = null;
+
+        // Unlink roll from the list of rolling tables.
+        if (mTickNext == roll) {
+            mTickNext = roll.mNextActive;
+        }
+        if (roll.mPrevActive != null) {
+            roll.mPrevActive.mNextActive = roll.mNextActive;
+        } else {
+            mActiveHead = roll.mNextActive;
+        }
+        if (roll.mNextActive != null) {
+            roll.mNextActive.mPrevActive = roll.mPrevActive;
+        }
+        roll.mPrevActive = null;
+        roll.mNextActive = null;
+
+        roll.mActive = false;
+        mActiveCount--;
+    }
+}
@@ -0,0 +1,184 @@
+package com.davidread.diceroller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Local tests that fail when the roll tick path allocates more than its budget. Allocations are
+ * measured with the thread allocation counters of {@link com.sun.management.ThreadMXBean} over
+ * many operations and compared against the total budget for all of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AllocationBudgetTest {
+
+    /**
+     * Int constants for how many times each operation runs before and while being measured.
+     */
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+
+    /**
+     * Long constant for the bytes reading the allocation counters may itself allocate during one
+     * measurement.
+     */
+    private static final long COUNTER_READ_ALLOWANCE_BYTES = 256;
+
+    /**
+     * {@link Runnable} constant that does nothing, used when an operation needs no set up.
+     */
+    private static final Runnable NO_SET_UP = () -> {
+    };
+
+    /**
+     * Long constants for the most bytes each operation may allocate on average.
+     */
+    private static final long DICE_ROLL_BUDGET_BYTES = 0;
+    private static final long CALCULATE_SUM_BUDGET_BYTES = 0;
+    private static final long UPDATE_UI_UNCHANGED_BUDGET_BYTES = 0;
+
+    // Non-zero only to allow for Robolectric's shadow setText()/setImageDrawable() bookkeeping.
+    private static final long UPDATE_UI_CHANGED_BUDGET_BYTES = 64;
+    private static final long TICK_BUDGET_BYTES = UPDATE_UI_CHANGED_BUDGET_BYTES;
+
+    /**
+     * {@link com.sun.management.ThreadMXBean} used to read the current thread's allocation counter.
+     */
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+
+    /**
+     * {@link MainActivity} whose tick path is measured.
+     */
+    private MainActivity mActivity;
+
+    /**
+     * Int counting set ups that cycle the dice values, so each gives the dice new values.
+     */
+    private int mDiceCycle;
+
+    @Before
+    public void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        mActivity = Robolectric.buildActivity(MainActivity.class).create().get();
+    }
+
+    @Test
+    public void diceRoll_withinBudget() {
+        Dice dice = new Dice(1);
+        assertWithinBudget("Dice.roll()", DICE_ROLL_BUDGET_BYTES, dice::roll);
+    }
+
+    @Test
+    public void calculateSum_withinBudget() {
+        assertWithinBudget("calculateSum()", CALCULATE_SUM_BUDGET_BYTES, mActivity::calculateSum);
+    }
+
+    @Test
+    public void rollSchedulerTick_withinBudget() {
+
+        // Roll every die for far longer than the measurement so no roll finishes.
+        RollScheduler scheduler = new RollScheduler(MainActivity.MAX_DICE, mActivity);
+        for (int i = 0; i < MainActivity.MAX_DICE; i++) {
+            scheduler.schedule(i, 1_000_000_000L);
+        }
+        assertWithinBudget("RollScheduler tick", TICK_BUDGET_BYTES, scheduler::advance);
+        scheduler.cancelAll();
+    }
+
+    @Test
+    public void onRollTick_withinBudget() {
+        assertWithinBudget("onRollTick()", DICE_ROLL_BUDGET_BYTES, () -> mActivity.onRollTick(0));
+    }
+
+    @Test
+    public void onTickEnd_withinBudget() {
+        assertWithinBudget("onTickEnd()", TICK_BUDGET_BYTES, () -> {
+            mActivity.onRollTick(0);
+            mActivity.onTickEnd();
+        });
+    }
+
+    @Test
+    public void updateUI_changedValues_withinBudget() {
+
+        // Give every die a new value before each measured updateUI() call.
+        Runnable cycleDice = () -> {
+            mDiceCycle++;
+            for (int i = 0; i < MainActivity.MAX_DICE; i++) {
+                mActivity.getDice(i).setNumber((mDiceCycle + i) % Dice.LARGEST_NUM + 1);
+            }
+            mActivity.calculateSum();
+        };
+        assertWithinBudget("updateUI() with changed values", UPDATE_UI_CHANGED_BUDGET_BYTES, cycleDice,
+                mActivity::updateUI);
+    }
+
+    @Test
+    public void updateUI_unchangedValues_withinBudget() {
+        assertWithinBudget("updateUI() with unchanged values", UPDATE_UI_UNCHANGED_BUDGET_BYTES,
+                mActivity::updateUI);
+    }
+
+    /**
+     * Runs the passed operation and fails if it allocates more than the passed budget on average.
+     *
+     * @param name        Name of the operation to report on failure.
+     * @param budgetBytes The most bytes the operation may allocate on average.
+     * @param operation   The operation to measure.
+     */
+    private void assertWithinBudget(String name, long budgetBytes, Runnable operation) {
+        assertWithinBudget(name, budgetBytes, NO_SET_UP, operation);
+    }
+
+    /**
+     * Runs the passed set up before each run of the passed operation and fails if the operation
+     * allocates more than the passed budget on average. Allocations by the set up are measured
+     * separately and not counted against the budget.
+     *
+     * @param name        Name of the operation to report on failure.
+     * @param budgetBytes The most bytes the operation may allocate on average.
+     * @param setUp       Runs before each run of the operation.
+     * @param operation   The operation to measure.
+     */
+    private void assertWithinBudget(String name, long budgetBytes, Runnable setUp, Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            setUp.run();
+            operation.run();
+        }
+
+        long operationBytes = allocatedBytes(setUp, operation) - allocatedBytes(setUp, NO_SET_UP);
+        long totalBudgetBytes = budgetBytes * MEASURED_ITERATIONS + COUNTER_READ_ALLOWANCE_BYTES;
+
+        assertTrue(name + " allocated " + operationBytes + " bytes over " + MEASURED_ITERATIONS
+                        + " operations, budget is " + totalBudgetBytes + " bytes",
+                operationBytes <= totalBudgetBytes);
+    }
+
+    /**
+     * Returns how many bytes the current thread allocates running the passed set up and operation
+     * {@link #MEASURED_ITERATIONS} times.
+     *
+     * @param setUp     Runs before each run of the operation.
+     * @param operation The operation to run.
+     */
+    private long allocatedBytes(Runnable setUp, Runnable operation) {
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            setUp.run();
+            operation.run();
+        }
+        return mThreadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,64 @@
+package com.davidread.diceroller;
+
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local Robolectric tests for rolling dice in {@link MainActivity}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainActivityRollTest {
+
+    /**
+     * Verifies a win or lose {@link com.google.android.material.snackbar.Snackbar} is shown only
+     * once when every die finishes rolling on the same tick.
+     */
+    @Test
+    public void rollDice_sameLength_showsSnackbarOnce() {
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).setup().get();
+        ShadowLooper mainLooper = shadowOf(Looper.getMainLooper());
+        mainLooper.idle();
+
+        // Count views added to the content view, which is where Snackbar views are shown.
+        int[] addedViews = new int[1];
+        ViewGroup content = activity.findViewById(android.R.id.content);
+        content.setOnHierarchyChangeListener(new ViewGroup.OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                addedViews[0]++;
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+            }
+        });
+
+        /* Give the dice a winning sum of 7, then roll all three for a single tick so they finish
+         * together without rolling new values. */
+        activity.getDice(0).setNumber(1);
+        activity.getDice(1).setNumber(2);
+        activity.getDice(2).setNumber(4);
+        for (int i = 0; i < MainActivity.MAX_DICE; i++) {
+            activity.getRollScheduler().schedule(i, RollScheduler.TICK_MILLIS);
+        }
+
+        mainLooper.idleFor(Duration.ofMillis(RollScheduler.TICK_MILLIS));
+        assertFalse(activity.getRollScheduler().isRolling());
+
+        mainLooper.idleFor(Duration.ofSeconds(5));
+        assertEquals(1, addedViews[0]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.davidread.diceroller;
+
+import android.os.Looper;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local Robolectric tests for the startup path of {@link MainActivity}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MainActivityStartupTest {
+
+    /**
+     * Long constant representing the most milliseconds {@link MainActivity#onCreate} may take to
+     * reach its first {@code updateUI()} call once classes and resources are warm. It is a
+     * generous limit that only catches gross regressions; deferred initialization is guarded by
+     * {@link #onCreate_deferredInit_runsWhenIdle()}.
+     */
+    private static final long FIRST_UPDATE_UI_BUDGET_MILLIS = 500;
+
+    /**
+     * Int constant representing how many warm launches are timed. The fastest one is reported
+     * and compared against {@link #FIRST_UPDATE_UI_BUDGET_MILLIS}.
+     */
+    private static final int TIMED_LAUNCHES = 5;
+
+    /**
+     * Verifies the first {@code updateUI()} runs within {@link #FIRST_UPDATE_UI_BUDGET_MILLIS} of
+     * onCreate starting.
+     */
+    @Test
+    public void onCreate_firstUpdateUI_withinBudget() {
+
+        // Warm up class loading and resource parsing so only onCreate itself is measured.
+        Robolectric.buildActivity(MainActivity.class).create().destroy();
+
+        long fastestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_LAUNCHES; i++) {
+            ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class).create();
+            MainActivity activity = controller.get();
+
+            // The sum label is only set by updateUI(), so it must be populated by now.
+            TextView sumTextView = activity.findViewById(R.id.sum_text_view);
+            assertEquals(activity.getString(R.string.sum_label, 6), sumTextView.getText().toString());
+
+            fastestNanos = Math.min(fastestNanos, activity.getTimeToFirstUpdateUINanos());
+            controller.destroy();
+        }
+
+        long fastestMillis = fastestNanos / 1_000_000;
+        System.out.println("Time to first updateUI(): " + fastestMillis + " ms");
+        assertTrue("Time to first updateUI() was " + fastestMillis + " ms, budget is "
+                        + FIRST_UPDATE_UI_BUDGET_MILLIS + " ms",
+                fastestMillis <= FIRST_UPDATE_UI_BUDGET_MILLIS);
+    }
+
+    /**
+     * Verifies work not needed for the first frame is deferred until the main thread is idle.
+     */
+    @Test
+    public void onCreate_deferredInit_runsWhenIdle() {
+        MainActivity activity = Robolectric.buildActivity(MainActivity.class).create().get();
+        assertFalse(activity.isDeferredInitComplete());
+
+        shadowOf(Looper.getMainLooper()).idle();
+        assertTrue(activity.isDeferredInitComplete());
+    }
+
+    /**
+     * Verifies deferred initialization does not run if the activity is destroyed before the main
+     * thread goes idle.
+     */
+    @Test
+    public void onDestroy_beforeIdle_skipsDeferredInit() {
+        ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class).create();
+        controller.destroy();
+
+        shadowOf(Looper.getMainLooper()).idle();
+        assertFalse(controller.get().isDeferredInitComplete());
+    }
+}
@@ -0,0 +1,214 @@
+package com.davidread.diceroller;
+
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local Robolectric tests for {@link RollScheduler}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RollSchedulerTest {
+
+    /**
+     * Int constant representing the number of tables each test's scheduler may roll.
+     */
+    private static final int TABLE_COUNT = 3;
+
+    /**
+     * Arrays of ints counting the ticks and finishes each table has received.
+     */
+    private final int[] mTicks = new int[TABLE_COUNT];
+    private final int[] mFinishes = new int[TABLE_COUNT];
+
+    /**
+     * Ints counting the tick ends and all-rolls-finished callbacks received.
+     */
+    private int mTickEnds;
+    private int mAllFinishes;
+
+    /**
+     * {@link RollScheduler} under test.
+     */
+    private RollScheduler mScheduler;
+
+    /**
+     * {@link ShadowLooper} of the main looper, used to advance time.
+     */
+    private ShadowLooper mMainLooper;
+
+    @Before
+    public void setUp() {
+        mMainLooper = shadowOf(Looper.getMainLooper());
+        mScheduler = new RollScheduler(TABLE_COUNT, new RollScheduler.OnRollListener() {
+            @Override
+            public void onRollTick(int table) {
+                mTicks[table]++;
+            }
+
+            @Override
+            public void onTickEnd() {
+                mTickEnds++;
+            }
+
+            @Override
+            public void onRollFinish(int table) {
+                mFinishes[table]++;
+            }
+
+            @Override
+            public void onAllRollsFinished() {
+                mAllFinishes++;
+            }
+        });
+    }
+
+    @Test
+    public void schedule_concurrentTables_finishAtOwnLength() {
+        mScheduler.schedule(0, 500);
+        mScheduler.schedule(1, 1000);
+        assertTrue(mScheduler.isRolling());
+
+        mMainLooper.idleFor(Duration.ofMillis(500));
+        assertEquals(1, mFinishes[0]);
+        assertEquals(0, mFinishes[1]);
+        assertFalse(mScheduler.isRolling(0));
+        assertTrue(mScheduler.isRolling(1));
+
+        mMainLooper.idleFor(Duration.ofMillis(500));
+        assertEquals(1, mFinishes[1]);
+        assertEquals(4, mTicks[0]);
+        assertEquals(9, mTicks[1]);
+        assertFalse(mScheduler.isRolling());
+    }
+
+    @Test
+    public void schedule_sameLength_allRollsFinishOnce() {
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            mScheduler.schedule(i, 500);
+        }
+
+        mMainLooper.idleFor(Duration.ofMillis(500));
+        assertEquals(5, mTickEnds);
+        assertEquals(1, mAllFinishes);
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            assertEquals(4, mTicks[i]);
+            assertEquals(1, mFinishes[i]);
+        }
+    }
+
+    @Test
+    public void schedule_betweenTicks_lastsFullLength() {
+        mScheduler.schedule(1, 2000);
+        mMainLooper.idleFor(Duration.ofMillis(250));
+        mScheduler.schedule(0, 500);
+
+        mMainLooper.idleFor(Duration.ofMillis(450));
+        assertEquals(0, mFinishes[0]);
+
+        mMainLooper.idleFor(Duration.ofMillis(100));
+        assertEquals(1, mFinishes[0]);
+    }
+
+    @Test
+    public void schedule_longerThanWheel_finishesOnce() {
+        mScheduler.schedule(0, 10_000);
+
+        mMainLooper.idleFor(Duration.ofMillis(9_900));
+        assertEquals(0, mFinishes[0]);
+
+        mMainLooper.idleFor(Duration.ofMillis(100));
+        assertEquals(1, mFinishes[0]);
+        assertEquals(99, mTicks[0]);
+    }
+
+    @Test
+    public void stall_skipsMissedTicks() {
+        mScheduler.schedule(0, 1000);
+
+        // Stall the main thread past three ticks, then let it run the late tick.
+        ShadowSystemClock.advanceBy(Duration.ofMillis(350));
+        mMainLooper.idle();
+        assertEquals(1, mTickEnds);
+        assertEquals(1, mTicks[0]);
+
+        mMainLooper.idleFor(Duration.ofMillis(650));
+        assertEquals(8, mTickEnds);
+        assertEquals(7, mTicks[0]);
+        assertEquals(1, mFinishes[0]);
+    }
+
+    @Test
+    public void stall_finishesRollsDueOnSkippedTicks() {
+        mScheduler.schedule(0, 200);
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(550));
+        mMainLooper.idle();
+        assertEquals(0, mTickEnds);
+        assertEquals(1, mFinishes[0]);
+        assertEquals(1, mAllFinishes);
+        assertFalse(mScheduler.isRolling());
+    }
+
+    @Test
+    public void schedule_onlyRollingTable_keepsOneTickSource() {
+        mScheduler.schedule(0, 1000);
+        mMainLooper.idleFor(Duration.ofMillis(300));
+        mScheduler.schedule(0, 1000);
+
+        mMainLooper.idleFor(Duration.ofMillis(300));
+        assertEquals(6, mTickEnds);
+    }
+
+    @Test
+    public void schedule_rollingTable_restartsRoll() {
+        mScheduler.schedule(0, 500);
+        mMainLooper.idleFor(Duration.ofMillis(300));
+        mScheduler.schedule(0, 500);
+
+        mMainLooper.idleFor(Duration.ofMillis(300));
+        assertEquals(0, mFinishes[0]);
+
+        mMainLooper.idleFor(Duration.ofMillis(200));
+        assertEquals(1, mFinishes[0]);
+    }
+
+    @Test
+    public void cancel_stopsOnlyThatTable() {
+        mScheduler.schedule(0, 500);
+        mScheduler.schedule(1, 500);
+        mScheduler.cancel(0);
+
+        mMainLooper.idleFor(Duration.ofMillis(500));
+        assertEquals(0, mTicks[0]);
+        assertEquals(0, mFinishes[0]);
+        assertEquals(1, mFinishes[1]);
+        assertEquals(1, mAllFinishes);
+    }
+
+    @Test
+    public void cancelAll_stopsEveryTable() {
+        mScheduler.schedule(0, 500);
+        mScheduler.schedule(2, 800);
+        mScheduler.cancelAll();
+        assertFalse(mScheduler.isRolling());
+
+        mMainLooper.idleFor(Duration.ofMillis(1000));
+        assertEquals(0, mFinishes[0]);
+        assertEquals(0, mFinishes[2]);
+        assertEquals(0, mAllFinishes);
+        assertEquals(0, mTickEnds);
+    }
+}